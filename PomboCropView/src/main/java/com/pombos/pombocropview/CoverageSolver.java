@@ -0,0 +1,111 @@
+package com.pombos.pombocropview;
+
+/**
+ * Closed-form coverage math for a rotated image behind an axis-aligned crop rect or oval.
+ * <p>
+ * The crop shape is projected onto the image axes once per angle change; the minimum
+ * scale and the allowed translation region then follow directly, so nothing here
+ * iterates or allocates.
+ */
+final class CoverageSolver {
+    private float imageWidth = 1f;
+    private float imageHeight = 1f;
+    private float cropHalfWidth = 0f;
+    private float cropHalfHeight = 0f;
+    private boolean oval = false;
+
+    private float cos = 1f;
+    private float sin = 0f;
+
+    // Half-extents of the crop shape measured along the image's own x and y axes
+    private float extentX = 0f;
+    private float extentY = 0f;
+
+    void setImageSize(float width, float height) {
+        imageWidth = width;
+        imageHeight = height;
+    }
+
+    void setCropSize(float width, float height) {
+        cropHalfWidth = width / 2f;
+        cropHalfHeight = height / 2f;
+        updateExtents();
+    }
+
+    void setOval(boolean oval) {
+        this.oval = oval;
+        updateExtents();
+    }
+
+    void setAngle(float degrees) {
+        double radians = Math.toRadians(degrees);
+        setRotation((float) Math.cos(radians), (float) Math.sin(radians));
+    }
+
+    void setRotation(float cos, float sin) {
+        this.cos = cos;
+        this.sin = sin;
+        updateExtents();
+    }
+
+    private void updateExtents() {
+        if (oval) {
+            // Support function of an ellipse along a unit direction
+            extentX = (float) Math.hypot(cropHalfWidth * cos, cropHalfHeight * sin);
+            extentY = (float) Math.hypot(cropHalfWidth * sin, cropHalfHeight * cos);
+        } else {
+            float absCos = Math.abs(cos);
+            float absSin = Math.abs(sin);
+            extentX = cropHalfWidth * absCos + cropHalfHeight * absSin;
+            extentY = cropHalfWidth * absSin + cropHalfHeight * absCos;
+        }
+    }
+
+    float minScale() {
+        return Math.max(2f * extentX / imageWidth, 2f * extentY / imageHeight);
+    }
+
+    // How far the image centre may move from the crop centre along each image axis
+    float limitX(float scale) {
+        return Math.max(0f, scale * imageWidth / 2f - extentX);
+    }
+
+    float limitY(float scale) {
+        return Math.max(0f, scale * imageHeight / 2f - extentY);
+    }
+
+    float toLocalX(float x, float y) {
+        return cos * x + sin * y;
+    }
+
+    float toLocalY(float x, float y) {
+        return -sin * x + cos * y;
+    }
+
+    float toViewX(float x, float y) {
+        return cos * x - sin * y;
+    }
+
+    float toViewY(float x, float y) {
+        return sin * x + cos * y;
+    }
+
+    /**
+     * Moves an image-centre offset (relative to the crop centre, view space) to the
+     * nearest position where the image still covers the crop shape.
+     */
+    void clampOffset(float scale, float dx, float dy, float[] out) {
+        float limitX = limitX(scale);
+        float limitY = limitY(scale);
+
+        float localX = clamp(toLocalX(dx, dy), -limitX, limitX);
+        float localY = clamp(toLocalY(dx, dy), -limitY, limitY);
+
+        out[0] = toViewX(localX, localY);
+        out[1] = toViewY(localX, localY);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,238 @@
+package com.pombos.pombocropview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * Renders small previews of the crop on a background thread.
+ * <p>
+ * Requests are coalesced latest-wins: the UI thread only overwrites a pending slot, and the
+ * render thread picks up whatever is newest when its frame slot comes around. Frames are
+ * rate-limited and rendered into one of two reused buffers; the next frame is not started
+ * until the previous one has been handed to the listener, so the listener may read its
+ * bitmap until the following callback. Requests identical to the previous one are dropped,
+ * so callers may forward every setImageMatrix() without re-rendering an unchanged crop.
+ */
+final class CropPreviewRenderer {
+
+    interface Callback {
+        void onPreviewRendered(Bitmap preview);
+    }
+
+    private final Callback callback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread renderThread;
+    private final Handler renderHandler;
+
+    private final Object lock = new Object();
+
+    // Written by the UI thread, read by the render thread under lock
+    private final float[] pendingValues = new float[9];
+    private final RectF pendingCropRect = new RectF();
+    private Bitmap pendingSource;
+    private boolean pendingOval;
+    private boolean hasPending;
+    private boolean busy;
+    private boolean released;
+    private long lastFrameTime;
+    private long frameInterval;
+    private int previewSize;
+
+    // Only touched by the UI thread; the last accepted request
+    private final float[] requestValues = new float[9];
+    private final float[] lastValues = new float[9];
+    private final RectF lastCropRect = new RectF();
+    private Bitmap lastSource;
+    private boolean lastOval;
+
+    // Only touched by the render thread
+    private final float[] renderValues = new float[9];
+    private final RectF renderCropRect = new RectF();
+    private final Matrix shaderMatrix = new Matrix();
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final Canvas canvas = new Canvas();
+    private final Bitmap[] buffers = new Bitmap[2];
+    private int backIndex = 0;
+    private Bitmap shaderSource;
+
+    private final Runnable renderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            render();
+        }
+    };
+
+    private final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    CropPreviewRenderer(Callback callback, int previewSize, int frameRate) {
+        this.callback = callback;
+        this.previewSize = previewSize;
+        this.frameInterval = 1000L / frameRate;
+
+        renderThread = new HandlerThread("PombosCropView-preview", Process.THREAD_PRIORITY_BACKGROUND);
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+    }
+
+    // UI thread; the next request renders even if the crop is unchanged
+    void setPreviewSize(int size) {
+        lastSource = null;
+        synchronized (lock) {
+            previewSize = size;
+        }
+    }
+
+    void setFrameRate(int frameRate) {
+        synchronized (lock) {
+            frameInterval = 1000L / frameRate;
+        }
+    }
+
+    // UI thread; never allocates or blocks on rendering
+    void request(Bitmap source, Matrix matrix, RectF cropRect, boolean oval) {
+        matrix.getValues(requestValues);
+        if (source == lastSource && oval == lastOval && cropRect.equals(lastCropRect)
+                && Arrays.equals(requestValues, lastValues)) return;
+
+        lastSource = source;
+        lastOval = oval;
+        lastCropRect.set(cropRect);
+        System.arraycopy(requestValues, 0, lastValues, 0, 9);
+
+        synchronized (lock) {
+            if (released) return;
+
+            System.arraycopy(requestValues, 0, pendingValues, 0, 9);
+            pendingCropRect.set(cropRect);
+            pendingSource = source;
+            pendingOval = oval;
+            hasPending = true;
+
+            if (!busy) {
+                busy = true;
+                scheduleLocked();
+            }
+        }
+    }
+
+    void release() {
+        synchronized (lock) {
+            released = true;
+            pendingSource = null;
+            lastSource = null;
+            hasPending = false;
+        }
+        renderHandler.removeCallbacks(renderRunnable);
+        mainHandler.removeCallbacks(deliverRunnable);
+        renderThread.quitSafely();
+    }
+
+    private void scheduleLocked() {
+        long delay = Math.max(0L, lastFrameTime + frameInterval - SystemClock.uptimeMillis());
+        renderHandler.postDelayed(renderRunnable, delay);
+    }
+
+    private void render() {
+        Bitmap source;
+        boolean oval;
+        int size;
+        synchronized (lock) {
+            if (released || !hasPending) {
+                busy = false;
+                return;
+            }
+            System.arraycopy(pendingValues, 0, renderValues, 0, 9);
+            renderCropRect.set(pendingCropRect);
+            source = pendingSource;
+            oval = pendingOval;
+            size = previewSize;
+            hasPending = false;
+            pendingSource = null;
+        }
+
+        float cropWidth = renderCropRect.width();
+        float cropHeight = renderCropRect.height();
+        float scale = size / Math.max(cropWidth, cropHeight);
+        int width = Math.max(1, Math.round(cropWidth * scale));
+        int height = Math.max(1, Math.round(cropHeight * scale));
+
+        try {
+            Bitmap buffer = buffers[backIndex];
+            if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+                if (buffer != null) {
+                    buffer.recycle();
+                }
+                buffer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                buffers[backIndex] = buffer;
+            }
+
+            if (source != shaderSource) {
+                paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+                shaderSource = source;
+            }
+
+            shaderMatrix.setValues(renderValues);
+            shaderMatrix.postTranslate(-renderCropRect.left, -renderCropRect.top);
+            shaderMatrix.postScale(scale, scale);
+            paint.getShader().setLocalMatrix(shaderMatrix);
+
+            buffer.eraseColor(0);
+            canvas.setBitmap(buffer);
+            if (oval) {
+                canvas.drawOval(0, 0, width, height, paint);
+            } else {
+                canvas.drawRect(0, 0, width, height, paint);
+            }
+            canvas.setBitmap(null);
+
+            mainHandler.post(deliverRunnable);
+        } catch (Exception e) {
+            // The source may have been recycled by the host; skip this frame
+            synchronized (lock) {
+                lastFrameTime = SystemClock.uptimeMillis();
+                if (hasPending && !released) {
+                    scheduleLocked();
+                } else {
+                    busy = false;
+                }
+            }
+        }
+    }
+
+    private void deliver() {
+        Bitmap preview;
+        synchronized (lock) {
+            if (released) return;
+            preview = buffers[backIndex];
+            backIndex ^= 1;
+        }
+
+        callback.onPreviewRendered(preview);
+
+        synchronized (lock) {
+            lastFrameTime = SystemClock.uptimeMillis();
+            if (hasPending && !released) {
+                scheduleLocked();
+            } else {
+                busy = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.pombos.pombocropview;
+
+/**
+ * Finds the most detailed region of a small ARGB buffer using edge energy.
+ * <p>
+ * Runs in a single pass over the luminance gradient plus a pass over a coarse grid,
+ * so a 256 px buffer takes a few milliseconds. Checks the calling thread's interrupt
+ * flag once per row so a superseded analysis can stop early.
+ */
+final class FocalPointDetector {
+    static final int BUFFER_SIZE = 256;
+
+    private static final int GRID_SIZE = 16;
+
+    private FocalPointDetector() {}
+
+    /**
+     * Writes the normalized (0..1) focal point into out. Returns false if the thread was
+     * interrupted before the analysis finished.
+     */
+    static boolean detect(int[] pixels, int width, int height, float[] out) {
+        out[0] = 0.5f;
+        out[1] = 0.5f;
+        if (width < 3 || height < 3) return true;
+
+        int[] luma = new int[width * height];
+        for (int i = 0; i < luma.length; i++) {
+            int color = pixels[i];
+            luma[i] = (77 * ((color >> 16) & 0xFF) + 150 * ((color >> 8) & 0xFF) + 29 * (color & 0xFF)) >> 8;
+        }
+
+        float[] energy = new float[width * height];
+        float[] cells = new float[GRID_SIZE * GRID_SIZE];
+
+        for (int y = 1; y < height - 1; y++) {
+            if (Thread.currentThread().isInterrupted()) return false;
+
+            int row = y * width;
+            int cellRow = (y * GRID_SIZE / height) * GRID_SIZE;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int gradient = Math.abs(luma[i + 1] - luma[i - 1]) + Math.abs(luma[i + width] - luma[i - width]);
+                // Squaring favours strong, structured edges over flat noise
+                float value = gradient * gradient;
+                energy[i] = value;
+                cells[cellRow + x * GRID_SIZE / width] += value;
+            }
+        }
+
+        // Pick the 3x3 cell neighbourhood with the most energy, lightly biased to the centre
+        int bestX = GRID_SIZE / 2;
+        int bestY = GRID_SIZE / 2;
+        float bestScore = 0f;
+        float half = (GRID_SIZE - 1) / 2f;
+        for (int cy = 0; cy < GRID_SIZE; cy++) {
+            for (int cx = 0; cx < GRID_SIZE; cx++) {
+                float sum = 0f;
+                for (int ny = Math.max(0, cy - 1); ny <= Math.min(GRID_SIZE - 1, cy + 1); ny++) {
+                    for (int nx = Math.max(0, cx - 1); nx <= Math.min(GRID_SIZE - 1, cx + 1); nx++) {
+                        sum += cells[ny * GRID_SIZE + nx];
+                    }
+                }
+                float distX = (cx - half) / half;
+                float distY = (cy - half) / half;
+                float score = sum * (1f - 0.25f * (distX * distX + distY * distY) / 2f);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestX = cx;
+                    bestY = cy;
+                }
+            }
+        }
+
+        if (bestScore <= 0f) return true;
+
+        // Refine to the energy centroid in a slightly wider window so the feature is not clipped
+        int left = Math.max(0, bestX - 2) * width / GRID_SIZE;
+        int right = Math.min(GRID_SIZE, bestX + 3) * width / GRID_SIZE;
+        int top = Math.max(0, bestY - 2) * height / GRID_SIZE;
+        int bottom = Math.min(GRID_SIZE, bestY + 3) * height / GRID_SIZE;
+
+        double total = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int y = top; y < bottom; y++) {
+            int row = y * width;
+            for (int x = left; x < right; x++) {
+                float value = energy[row + x];
+                total += value;
+                sumX += value * x;
+                sumY += value * y;
+            }
+        }
+
+        if (total > 0) {
+            out[0] = (float) ((sumX / total + 0.5) / width);
+            out[1] = (float) ((sumY / total + 0.5) / height);
+        }
+        return true;
+    }
+}
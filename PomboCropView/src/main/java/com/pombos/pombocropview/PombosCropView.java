@@ -1,14 +1,26 @@
 package com.pombos.pombocropview;
 
 import android.animation.ValueAnimator;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.view.AbsSavedState;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.animation.DecelerateInterpolator;
@@ -17,6 +29,16 @@ import android.view.animation.OvershootInterpolator;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.core.content.ContextCompat;
 
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 public class PombosCropView extends AppCompatImageView {
     private Matrix matrix = new Matrix();
     private Matrix savedMatrix = new Matrix();
@@ -34,6 +56,8 @@ public class PombosCropView extends AppCompatImageView {
     private float currentScale = 1f;
 
     private int rotationDegrees = 0;
+    private float straightenAngle = 0f;
+    private static final float MAX_STRAIGHTEN_ANGLE = 45f;
 
     private ValueAnimator bounceAnimator;
     private ValueAnimator rotateAnimator;
@@ -41,6 +65,8 @@ public class PombosCropView extends AppCompatImageView {
     private static final long ROTATE_DURATION = 400;
     private static final float RESISTANCE_FACTOR = 400f;
     private static final float MAX_OVERSCROLL = 0.2f;
+    private static final float SCALE_TOLERANCE = 0.001f;
+    private static final float SNAP_THRESHOLD = 0.01f;
 
     private ScaleGestureDetector scaleDetector;
 
@@ -52,10 +78,68 @@ public class PombosCropView extends AppCompatImageView {
     private float fabRadius = 60f;
     private float fabCx, fabCy;
 
-    private int cropSize = 0;
+    public static final int SHAPE_RECTANGLE = 0;
+    public static final int SHAPE_OVAL = 1;
+    private int cropShape = SHAPE_RECTANGLE;
+    private float cropAspectRatio = 1f;
+    private static final float CROP_AREA_RATIO = 0.8f;
+
+    private int cropWidth = 0;
+    private int cropHeight = 0;
+    private final RectF cropRect = new RectF();
+    private final Path cropPath = new Path();
+    private final Path overlayPath = new Path();
     private int viewWidth = 0;
     private int viewHeight = 0;
 
+    private boolean initialized;
+    private boolean settingImageResource;
+    private boolean autoFramingEnabled = false;
+    private boolean userAdjusted = false;
+    private String sourceKey;
+    private Future<?> framingTask;
+    private int framingGeneration = 0;
+    private float[] pendingFocalPoint;
+    private SavedState pendingState;
+
+    private boolean progressiveLoading = false;
+    private int maxPreviewSize = 2048;
+    private Future<?> loadTask;
+    private int loadGeneration = 0;
+    // Preview pixels per drawable pixel; above 1 while a thumbnail stands in for the preview
+    private float resolutionScale = 1f;
+    private static final int THUMBNAIL_SIZE = 256;
+    private static final float THUMBNAIL_ASPECT_TOLERANCE = 0.01f;
+    private static final ExecutorService LOAD_EXECUTOR = newBackgroundExecutor("PombosCropView-decode", Thread.NORM_PRIORITY - 1);
+
+    // Bitmap keys are identity based, so they do not survive recreation the way URI and resource keys do
+    private static final String BITMAP_KEY_PREFIX = "bitmap:";
+    private static final float SOURCE_ASPECT_TOLERANCE = 0.01f;
+
+    private static final int FOCAL_CACHE_SIZE = 16;
+    private static final ExecutorService FRAMING_EXECUTOR = newBackgroundExecutor("PombosCropView-framing", Thread.MIN_PRIORITY);
+    private static final Map<String, float[]> FOCAL_CACHE = new LinkedHashMap<String, float[]>(FOCAL_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+            return size() > FOCAL_CACHE_SIZE;
+        }
+    };
+
+    private OnCropPreviewListener previewListener;
+    private CropPreviewRenderer previewRenderer;
+    private int previewSize = 128;
+    private int previewFrameRate = 30;
+
+    private final CoverageSolver coverageSolver = new CoverageSolver();
+    private final float[] matrixValues = new float[9];
+    private final float[] clampedOffset = new float[2];
+    private final float[] resistedOffset = new float[2];
+    // Where the running bounceAnimator will leave matrix
+    private final Matrix bounceTarget = new Matrix();
+    // Framing a straighten gesture started from, reused while matrix still holds straightenValues
+    private final float[] straightenFraming = new float[3];
+    private final float[] straightenValues = new float[9];
+
     public PombosCropView(Context context) {
         super(context);
         init(context);
@@ -74,6 +158,7 @@ public class PombosCropView extends AppCompatImageView {
         gridPaint = new Paint();
         gridPaint.setColor(0xFFFFFFFF);
         gridPaint.setStrokeWidth(2f);
+        gridPaint.setAntiAlias(true);
         gridPaint.setStyle(Paint.Style.STROKE);
 
         overlayPaint = new Paint();
@@ -99,65 +184,726 @@ public class PombosCropView extends AppCompatImageView {
         } catch (Exception e) {
             fabIcon = null;
         }
+
+        initialized = true;
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+
+        // Carry the current framing over a resize instead of re-centring
+        SavedState relayoutState = null;
+        if (oldw > 0 && oldh > 0 && cropWidth > 0 && getDrawable() != null) {
+            relayoutState = new SavedState(AbsSavedState.EMPTY_STATE);
+            captureTransform(relayoutState);
+        }
+
         viewWidth = w;
         viewHeight = h;
-        cropSize = (int) (Math.min(w, h) * 0.8f);
-        centerImage();
+        updateCropArea();
+        if (relayoutState != null) {
+            restoreTransform(relayoutState);
+        } else if (!applyPendingState()) {
+            centerImage();
+        }
+        if (pendingFocalPoint != null) {
+            applyFocalPoint(pendingFocalPoint[0], pendingFocalPoint[1]);
+        }
         fabCx = viewWidth - fabRadius - 30f;
         fabCy = viewHeight - fabRadius - 30f;
     }
 
-    private void centerImage() {
+    @Override
+    public void setImageDrawable(Drawable drawable) {
+        cancelProgressiveLoad();
+        resolutionScale = 1f;
+        super.setImageDrawable(drawable);
+        if (!settingImageResource) {
+            onImageChanged(null);
+        }
+    }
+
+    @Override
+    public void setImageURI(Uri uri) {
+        cancelProgressiveLoad();
+        resolutionScale = 1f;
+        if (progressiveLoading && uri != null && initialized) {
+            // The first decoded bitmap reports the change, so a pending restored state is applied to it
+            cancelAutoFraming();
+            cancelAnimations();
+            super.setImageDrawable(null);
+            startProgressiveLoad(uri);
+            return;
+        }
+        super.setImageURI(uri);
+        onImageChanged(uri != null ? uri.toString() : null);
+    }
+
+    @Override
+    public void setImageResource(int resId) {
+        cancelProgressiveLoad();
+        resolutionScale = 1f;
+        // AppCompatImageView routes this through setImageDrawable(); report the change once, with the resource key
+        settingImageResource = true;
+        try {
+            super.setImageResource(resId);
+        } finally {
+            settingImageResource = false;
+        }
+        onImageChanged("res:" + resId);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Framing and progressive loads keep running; their generation-checked results are
+        // posted, so they wait in the run queue until the view is re-attached
+        releasePreviewRenderer();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (previewListener != null) {
+            startPreviewRenderer();
+        }
+    }
+
+    @Override
+    public void setImageMatrix(Matrix imageMatrix) {
+        super.setImageMatrix(imageMatrix);
+        requestCropPreview(imageMatrix != null ? imageMatrix : getImageMatrix());
+    }
+
+    // When enabled, setImageURI() shows the EXIF thumbnail first and swaps in the decoded preview later
+    public void setProgressiveLoadingEnabled(boolean enabled) {
+        progressiveLoading = enabled;
+    }
+
+    public boolean isProgressiveLoadingEnabled() {
+        return progressiveLoading;
+    }
+
+    // Longest side of the preview decoded by progressive loading
+    public void setMaxPreviewSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Preview size must be positive: " + size);
+        }
+        maxPreviewSize = size;
+    }
+
+    public int getMaxPreviewSize() {
+        return maxPreviewSize;
+    }
+
+    private void startProgressiveLoad(final Uri uri) {
+        final int generation = loadGeneration;
+        final String key = uri.toString();
+        final ContentResolver resolver = getContext().getContentResolver();
+        final int previewSize = maxPreviewSize;
+
+        loadTask = LOAD_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                BitmapFactory.Options bounds = decodeBounds(resolver, uri);
+                if (bounds == null) return;
+
+                // BitmapFactory ignores EXIF orientation, unlike the ImageDecoder path of setImageURI()
+                ExifInterface exif = readExif(resolver, uri);
+                int orientation = exif != null
+                        ? exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)
+                        : ExifInterface.ORIENTATION_NORMAL;
+
+                int previewSampleSize = sampleSizeFor(bounds, previewSize);
+                int uprightWidth = isTransposed(orientation) ? bounds.outHeight : bounds.outWidth;
+                float previewWidth = uprightWidth / (float) previewSampleSize;
+
+                Bitmap thumbnail = applyOrientation(decodeThumbnail(resolver, uri, exif, bounds), orientation);
+                if (thumbnail != null) {
+                    postLoadResult(generation, thumbnail, key, previewWidth / thumbnail.getWidth());
+                }
+
+                if (Thread.currentThread().isInterrupted()) return;
+
+                Bitmap preview = applyOrientation(decodeSampled(resolver, uri, previewSampleSize), orientation);
+                if (preview != null) {
+                    postLoadResult(generation, preview, key, 1f);
+                }
+            }
+        });
+    }
+
+    private void cancelProgressiveLoad() {
+        loadGeneration++;
+        if (loadTask != null) {
+            loadTask.cancel(true);
+            loadTask = null;
+        }
+    }
+
+    private void postLoadResult(final int generation, final Bitmap bitmap, final String key, final float scale) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == loadGeneration) {
+                    swapInBitmap(bitmap, key, scale);
+                }
+            }
+        });
+    }
+
+    // Replaces the drawable with a higher resolution copy of the same source, keeping pan, zoom and gestures intact
+    private void swapInBitmap(Bitmap bitmap, String key, float scale) {
+        Drawable previous = getDrawable();
+        BitmapDrawable drawable = new BitmapDrawable(getResources(), bitmap);
+
+        if (previous == null || previous.getIntrinsicWidth() <= 0 || cropWidth == 0) {
+            resolutionScale = scale;
+            super.setImageDrawable(drawable);
+            onImageChanged(key);
+            return;
+        }
+
+        if (bounceAnimator != null && bounceAnimator.isRunning()) {
+            bounceAnimator.cancel();
+        }
+
+        float ratio = previous.getIntrinsicWidth() / (float) drawable.getIntrinsicWidth();
+        matrix.preScale(ratio, ratio);
+        savedMatrix.preScale(ratio, ratio);
+        currentScale *= ratio;
+        resolutionScale = scale;
+
+        super.setImageDrawable(drawable);
+        sourceKey = key;
+        updateMinScale();
+        setImageMatrix(matrix);
+
+        // A thumbnail with a slightly different aspect ratio may need a nudge back into coverage
+        if (mode == NONE && (rotateAnimator == null || !rotateAnimator.isRunning())) {
+            animateBounceBack();
+        }
+        invalidate();
+    }
+
+    // The ImageView constructor may set a drawable before init() has run
+    private void onImageChanged(String key) {
+        if (!initialized) return;
+
+        cancelAutoFraming();
+        userAdjusted = false;
+        pendingFocalPoint = null;
+        cancelAnimations();
+
+        sourceKey = key;
+        if (sourceKey == null && getDrawable() instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) getDrawable()).getBitmap();
+            if (bitmap != null) {
+                sourceKey = BITMAP_KEY_PREFIX + System.identityHashCode(bitmap) + ":" + bitmap.getGenerationId();
+            }
+        }
+
+        if (cropWidth > 0 && !applyPendingState()) {
+            centerImage();
+        }
+
+        startAutoFraming();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        captureTransform(state);
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        pendingState = savedState;
+        if (cropWidth > 0) {
+            applyPendingState();
+        }
+    }
+
+    // Describes the framing relative to the source image so it survives any view size
+    private void captureTransform(SavedState out) {
+        // Not applied yet because there is no image or layout; with both, it belongs to another image
+        if (pendingState != null && (getDrawable() == null || cropWidth == 0)) {
+            out.copyFrom(pendingState);
+            return;
+        }
+
+        // Save where running animations will land without jumping them there; this also runs on onStop()
+        boolean rotating = rotateAnimator != null && rotateAnimator.isRunning();
+        out.rotationDegrees = rotating ? (rotationDegrees + 90) % 360 : rotationDegrees;
+        out.straightenAngle = straightenAngle;
+        out.userAdjusted = userAdjusted;
+        out.sourceKey = sourceKey;
+
+        if (getDrawable() == null || cropWidth == 0) return;
+        out.sourceAspect = getSourceAspect();
+
+        Matrix target = matrix;
+        if (rotating) {
+            target = new Matrix();
+            buildCenteredMatrix(out.rotationDegrees + straightenAngle, target);
+        } else if (bounceAnimator != null && bounceAnimator.isRunning()) {
+            target = bounceTarget;
+        }
+
+        float[] framing = new float[3];
+        if (!captureFraming(target, framing)) return;
+        out.centerX = framing[0];
+        out.centerY = framing[1];
+        out.zoom = framing[2];
+    }
+
+    // Writes the normalized source point under the crop centre and the zoom relative to coverage into out
+    private boolean captureFraming(Matrix source, float[] out) {
+        Matrix inverse = new Matrix();
+        if (!source.invert(inverse)) return false;
+
+        float[] cropCenter = {getCropCenterX(), getCropCenterY()};
+        inverse.mapPoints(cropCenter);
+        out[0] = cropCenter[0] / getDrawable().getIntrinsicWidth();
+        out[1] = cropCenter[1] / getDrawable().getIntrinsicHeight();
+
+        float scale = syncSolver(source);
+        float coverageScale = coverageSolver.minScale();
+        out[2] = coverageScale > 0f ? scale / coverageScale : 1f;
+        return true;
+    }
+
+    /**
+     * Restores pendingState if it was saved for the current image. A state saved for another
+     * source (a placeholder shown first, or a different image after recreation) is kept for a
+     * later match instead. Returns false when nothing was restored.
+     */
+    private boolean applyPendingState() {
+        if (pendingState == null || getDrawable() == null) return false;
+        if (!pendingState.matchesSource(sourceKey, getSourceAspect())) return false;
+
+        SavedState state = pendingState;
+        pendingState = null;
+        restoreTransform(state);
+        return true;
+    }
+
+    private float getSourceAspect() {
+        return getDrawable().getIntrinsicWidth() / (float) getDrawable().getIntrinsicHeight();
+    }
+
+    // Rebuilds matrix for the current layout in one step, without animating through centerImage()
+    private void restoreTransform(SavedState state) {
         if (getDrawable() == null) return;
 
+        cancelAnimations();
+        rotationDegrees = state.rotationDegrees;
+        straightenAngle = state.straightenAngle;
+        userAdjusted = state.userAdjusted;
+        applyFraming(state.centerX, state.centerY, state.zoom);
+    }
+
+    // Inverse of captureFraming() at getTotalRotation(), clamped into coverage
+    private void applyFraming(float centerX, float centerY, float zoom) {
         float imageWidth = getDrawable().getIntrinsicWidth();
         float imageHeight = getDrawable().getIntrinsicHeight();
+        float degrees = getTotalRotation();
+
+        coverageSolver.setImageSize(imageWidth, imageHeight);
+        coverageSolver.setAngle(degrees);
+        minScale = coverageSolver.minScale();
+        float scale = Math.max(minScale, Math.min(maxScale * resolutionScale, minScale * zoom));
 
-        float effectiveWidth = imageWidth;
-        float effectiveHeight = imageHeight;
+        matrix.reset();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(degrees);
+        matrix.getValues(matrixValues);
+
+        float sourceX = centerX * imageWidth;
+        float sourceY = centerY * imageHeight;
+        float mappedX = matrixValues[Matrix.MSCALE_X] * sourceX + matrixValues[Matrix.MSKEW_X] * sourceY;
+        float mappedY = matrixValues[Matrix.MSKEW_Y] * sourceX + matrixValues[Matrix.MSCALE_Y] * sourceY;
+        matrix.postTranslate(getCropCenterX() - mappedX, getCropCenterY() - mappedY);
+
+        // A smaller crop area or view can leave less room, so settle into coverage immediately
+        syncSolver(matrix);
+        float offsetX = getImageOffsetX();
+        float offsetY = getImageOffsetY();
+        coverageSolver.clampOffset(scale, offsetX, offsetY, clampedOffset);
+        matrix.postTranslate(clampedOffset[0] - offsetX, clampedOffset[1] - offsetY);
+
+        currentScale = scale;
+        setImageMatrix(matrix);
+        invalidate();
+    }
 
-        if (rotationDegrees % 180 != 0) {
-            effectiveWidth = imageHeight;
-            effectiveHeight = imageWidth;
+    public void setAutoFramingEnabled(boolean enabled) {
+        autoFramingEnabled = enabled;
+        if (enabled) {
+            startAutoFraming();
+        } else {
+            cancelAutoFraming();
         }
+    }
 
-        minScale = Math.max(cropSize / effectiveWidth, cropSize / effectiveHeight);
+    public boolean isAutoFramingEnabled() {
+        return autoFramingEnabled;
+    }
 
-        if (currentScale < minScale) {
-            currentScale = minScale;
+    private void startAutoFraming() {
+        if (!autoFramingEnabled || userAdjusted || !(getDrawable() instanceof BitmapDrawable)) return;
+
+        final Bitmap source = ((BitmapDrawable) getDrawable()).getBitmap();
+        if (source == null) return;
+
+        cancelAutoFraming();
+        final int generation = framingGeneration;
+        final String key = sourceKey;
+
+        float[] cached = getCachedFocalPoint(key);
+        if (cached != null) {
+            applyFocalPoint(cached[0], cached[1]);
+            return;
         }
 
-        float scale = Math.max(cropSize / effectiveWidth, cropSize / effectiveHeight);
+        framingTask = FRAMING_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                final float[] focalPoint = new float[2];
+                if (!detectFocalPoint(source, focalPoint)) return;
+
+                putCachedFocalPoint(key, focalPoint);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == framingGeneration) {
+                            applyFocalPoint(focalPoint[0], focalPoint[1]);
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        matrix.reset();
-        matrix.postScale(scale, scale);
-        matrix.postRotate(rotationDegrees, (imageWidth * scale) / 2f, (imageHeight * scale) / 2f);
+    private void cancelAutoFraming() {
+        framingGeneration++;
+        if (framingTask != null) {
+            framingTask.cancel(true);
+            framingTask = null;
+        }
+    }
+
+    // Runs on the framing thread; false means the analysis was cancelled or the bitmap became unusable
+    private static boolean detectFocalPoint(Bitmap source, float[] out) {
+        try {
+            int width = source.getWidth();
+            int height = source.getHeight();
+            float ratio = Math.min(1f, FocalPointDetector.BUFFER_SIZE / (float) Math.max(width, height));
+            int bufferWidth = Math.max(1, Math.round(width * ratio));
+            int bufferHeight = Math.max(1, Math.round(height * ratio));
+
+            Bitmap buffer = Bitmap.createScaledBitmap(source, bufferWidth, bufferHeight, true);
+            int[] pixels = new int[bufferWidth * bufferHeight];
+            buffer.getPixels(pixels, 0, bufferWidth, 0, 0, bufferWidth, bufferHeight);
+            if (buffer != source) {
+                buffer.recycle();
+            }
+
+            return FocalPointDetector.detect(pixels, bufferWidth, bufferHeight, out);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // A stream-backed ExifInterface keeps the thumbnail bytes in memory, so it stays usable after close
+    private static ExifInterface readExif(ContentResolver resolver, Uri uri) {
+        try (InputStream input = resolver.openInputStream(uri)) {
+            return input != null ? new ExifInterface(input) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Bitmap decodeThumbnail(ContentResolver resolver, Uri uri, ExifInterface exif,
+                                          BitmapFactory.Options bounds) {
+        byte[] data = exif != null ? exif.getThumbnail() : null;
+        if (data != null) {
+            Bitmap thumbnail = BitmapFactory.decodeByteArray(data, 0, data.length);
+            if (thumbnail != null) {
+                // Fixed-size thumbnails (often 160x120) pad other aspect ratios with black bars; the
+                // swap to the preview only keeps the framing when both have the source's shape
+                float thumbnailAspect = thumbnail.getWidth() / (float) thumbnail.getHeight();
+                float sourceAspect = bounds.outWidth / (float) bounds.outHeight;
+                if (Math.abs(thumbnailAspect - sourceAspect) <= THUMBNAIL_ASPECT_TOLERANCE * sourceAspect) {
+                    return thumbnail;
+                }
+                thumbnail.recycle();
+            }
+        }
+        // No usable EXIF thumbnail, fall back to a tiny sampled decode
+        return decodeSampled(resolver, uri, sampleSizeFor(bounds, THUMBNAIL_SIZE));
+    }
+
+    // Orientations 5-8 swap width and height
+    private static boolean isTransposed(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270;
+    }
+
+    // Turns a decoded bitmap upright according to its EXIF orientation tag
+    private static Bitmap applyOrientation(Bitmap bitmap, int orientation) {
+        if (bitmap == null) return null;
+
+        Matrix transform = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                transform.setScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                transform.setRotate(180f);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                transform.setScale(1f, -1f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                transform.setRotate(90f);
+                transform.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                transform.setRotate(90f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                transform.setRotate(-90f);
+                transform.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                transform.setRotate(-90f);
+                break;
+            default:
+                return bitmap;
+        }
+
+        try {
+            Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), transform, true);
+            if (upright != bitmap) {
+                bitmap.recycle();
+            }
+            return upright;
+        } catch (OutOfMemoryError e) {
+            // Showing it sideways beats showing nothing
+            return bitmap;
+        }
+    }
+
+    private static BitmapFactory.Options decodeBounds(ContentResolver resolver, Uri uri) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = resolver.openInputStream(uri)) {
+            if (input == null) return null;
+            BitmapFactory.decodeStream(input, null, options);
+        } catch (Exception e) {
+            return null;
+        }
+        return options.outWidth > 0 && options.outHeight > 0 ? options : null;
+    }
+
+    private static int sampleSizeFor(BitmapFactory.Options bounds, int maxSize) {
+        int longestSide = Math.max(bounds.outWidth, bounds.outHeight);
+        int sampleSize = 1;
+        while (longestSide / sampleSize > maxSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        try (InputStream input = resolver.openInputStream(uri)) {
+            if (input == null) return null;
+            return BitmapFactory.decodeStream(input, null, options);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newBackgroundExecutor(final String name, final int priority) {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            }
+        });
+    }
+
+    private static float[] getCachedFocalPoint(String key) {
+        if (key == null) return null;
+        synchronized (FOCAL_CACHE) {
+            return FOCAL_CACHE.get(key);
+        }
+    }
+
+    private static void putCachedFocalPoint(String key, float[] focalPoint) {
+        if (key == null) return;
+        synchronized (FOCAL_CACHE) {
+            FOCAL_CACHE.put(key, focalPoint);
+        }
+    }
 
-        RectF rect = new RectF(0, 0, imageWidth, imageHeight);
-        matrix.mapRect(rect);
+    // Slides the normalized source point towards the crop centre as far as coverage allows
+    private void applyFocalPoint(float focalX, float focalY) {
+        if (getDrawable() == null || userAdjusted) return;
+        if (cropWidth == 0) {
+            pendingFocalPoint = new float[]{focalX, focalY};
+            return;
+        }
+        pendingFocalPoint = null;
+        if (rotateAnimator != null && rotateAnimator.isRunning()) return;
 
-        int leftCrop = (viewWidth - cropSize) / 2;
-        int topCrop = (viewHeight - cropSize) / 2;
+        float scale = syncSolver(matrix);
+        float imageX = focalX * getDrawable().getIntrinsicWidth();
+        float imageY = focalY * getDrawable().getIntrinsicHeight();
+        float viewX = matrixValues[Matrix.MSCALE_X] * imageX + matrixValues[Matrix.MSKEW_X] * imageY
+                + matrixValues[Matrix.MTRANS_X];
+        float viewY = matrixValues[Matrix.MSKEW_Y] * imageX + matrixValues[Matrix.MSCALE_Y] * imageY
+                + matrixValues[Matrix.MTRANS_Y];
 
-        float cropCenterX = leftCrop + cropSize / 2f;
-        float cropCenterY = topCrop + cropSize / 2f;
+        float offsetX = getImageOffsetX();
+        float offsetY = getImageOffsetY();
+        coverageSolver.clampOffset(scale, offsetX + getCropCenterX() - viewX,
+                offsetY + getCropCenterY() - viewY, clampedOffset);
 
-        float imageCenterX = rect.left + rect.width() / 2f;
-        float imageCenterY = rect.top + rect.height() / 2f;
+        float dx = clampedOffset[0] - offsetX;
+        float dy = clampedOffset[1] - offsetY;
+        if (Math.abs(dx) < SNAP_THRESHOLD && Math.abs(dy) < SNAP_THRESHOLD) return;
 
-        float dx = cropCenterX - imageCenterX;
-        float dy = cropCenterY - imageCenterY;
+        animateTranslation(dx, dy);
+    }
+
+    private void cancelAnimations() {
+        if (bounceAnimator != null && bounceAnimator.isRunning()) {
+            bounceAnimator.cancel();
+        }
+        if (rotateAnimator != null && rotateAnimator.isRunning()) {
+            rotateAnimator.cancel();
+        }
+    }
+
+    private void centerImage() {
+        if (getDrawable() == null) return;
+
+        minScale = buildCenteredMatrix(getTotalRotation(), matrix);
+
+        if (currentScale < minScale) {
+            currentScale = minScale;
+        }
 
-        matrix.postTranslate(dx, dy);
         setImageMatrix(matrix);
         invalidate();
     }
 
+    // Rebuilds the crop rect and overlay paths; only runs on size or shape changes
+    private void updateCropArea() {
+        float availableWidth = viewWidth * CROP_AREA_RATIO;
+        float availableHeight = viewHeight * CROP_AREA_RATIO;
+
+        cropWidth = (int) Math.min(availableWidth, availableHeight * cropAspectRatio);
+        cropHeight = (int) (cropWidth / cropAspectRatio);
+
+        int left = (viewWidth - cropWidth) / 2;
+        int top = (viewHeight - cropHeight) / 2;
+        cropRect.set(left, top, left + cropWidth, top + cropHeight);
+
+        cropPath.reset();
+        if (cropShape == SHAPE_OVAL) {
+            cropPath.addOval(cropRect, Path.Direction.CW);
+        } else {
+            cropPath.addRect(cropRect, Path.Direction.CW);
+        }
+
+        overlayPath.reset();
+        overlayPath.setFillType(Path.FillType.EVEN_ODD);
+        overlayPath.addRect(0, 0, viewWidth, viewHeight, Path.Direction.CW);
+        overlayPath.addPath(cropPath);
+
+        coverageSolver.setCropSize(cropWidth, cropHeight);
+        coverageSolver.setOval(cropShape == SHAPE_OVAL);
+        requestCropPreview();
+    }
+
+    private float getTotalRotation() {
+        return rotationDegrees + straightenAngle;
+    }
+
+    private float getCropCenterX() {
+        return cropRect.centerX();
+    }
+
+    private float getCropCenterY() {
+        return cropRect.centerY();
+    }
+
+    // Writes the minimum-coverage matrix for the given angle into out and returns its scale
+    private float buildCenteredMatrix(float degrees, Matrix out) {
+        float imageWidth = getDrawable().getIntrinsicWidth();
+        float imageHeight = getDrawable().getIntrinsicHeight();
+
+        coverageSolver.setImageSize(imageWidth, imageHeight);
+        coverageSolver.setAngle(degrees);
+        float scale = coverageSolver.minScale();
+
+        float pivotX = (imageWidth * scale) / 2f;
+        float pivotY = (imageHeight * scale) / 2f;
+
+        out.reset();
+        out.postScale(scale, scale);
+        out.postRotate(degrees, pivotX, pivotY);
+        out.postTranslate(getCropCenterX() - pivotX, getCropCenterY() - pivotY);
+        return scale;
+    }
+
+    // Points coverageSolver at the rotation baked into source and returns its scale
+    private float syncSolver(Matrix source) {
+        source.getValues(matrixValues);
+        float scale = (float) Math.hypot(matrixValues[Matrix.MSCALE_X], matrixValues[Matrix.MSKEW_Y]);
+
+        coverageSolver.setImageSize(getDrawable().getIntrinsicWidth(), getDrawable().getIntrinsicHeight());
+        if (scale > 0f) {
+            coverageSolver.setRotation(matrixValues[Matrix.MSCALE_X] / scale, matrixValues[Matrix.MSKEW_Y] / scale);
+        }
+        return scale;
+    }
+
+    // Image centre minus crop centre, read from the values captured by syncSolver()
+    private float getImageOffsetX() {
+        float halfWidth = getDrawable().getIntrinsicWidth() / 2f;
+        float halfHeight = getDrawable().getIntrinsicHeight() / 2f;
+        return matrixValues[Matrix.MSCALE_X] * halfWidth + matrixValues[Matrix.MSKEW_X] * halfHeight
+                + matrixValues[Matrix.MTRANS_X] - getCropCenterX();
+    }
+
+    private float getImageOffsetY() {
+        float halfWidth = getDrawable().getIntrinsicWidth() / 2f;
+        float halfHeight = getDrawable().getIntrinsicHeight() / 2f;
+        return matrixValues[Matrix.MSKEW_Y] * halfWidth + matrixValues[Matrix.MSCALE_Y] * halfHeight
+                + matrixValues[Matrix.MTRANS_Y] - getCropCenterY();
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         float x = event.getX();
@@ -176,6 +922,7 @@ public class PombosCropView extends AppCompatImageView {
 
         switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
+                userAdjusted = true;
                 if (bounceAnimator != null && bounceAnimator.isRunning()) {
                     bounceAnimator.cancel();
                 }
@@ -198,7 +945,7 @@ public class PombosCropView extends AppCompatImageView {
                     matrix.set(savedMatrix);
                     float dx = event.getX() - startX;
                     float dy = event.getY() - startY;
-                    float[] resistedOffset = applyResistance(dx, dy);
+                    applyResistance(dx, dy);
                     matrix.postTranslate(resistedOffset[0], resistedOffset[1]);
                 }
                 break;
@@ -217,117 +964,73 @@ public class PombosCropView extends AppCompatImageView {
         return true;
     }
 
-    private float[] applyResistance(float dx, float dy) {
-        if (getDrawable() == null) return new float[]{dx, dy};
-
-        Matrix testMatrix = new Matrix(savedMatrix);
-        testMatrix.postTranslate(dx, dy);
-
-        RectF bounds = new RectF(0, 0, getDrawable().getIntrinsicWidth(), getDrawable().getIntrinsicHeight());
-        testMatrix.mapRect(bounds);
+    // Writes the resisted drag delta into resistedOffset
+    private void applyResistance(float dx, float dy) {
+        resistedOffset[0] = dx;
+        resistedOffset[1] = dy;
+        if (getDrawable() == null) return;
 
-        int leftCrop = (viewWidth - cropSize) / 2;
-        int topCrop = (viewHeight - cropSize) / 2;
-        int rightCrop = leftCrop + cropSize;
-        int bottomCrop = topCrop + cropSize;
+        float scale = syncSolver(savedMatrix);
+        float offsetX = getImageOffsetX() + dx;
+        float offsetY = getImageOffsetY() + dy;
 
-        float maxOverscroll = cropSize * MAX_OVERSCROLL;
+        // Resistance is applied along the image's own axes so tilted edges behave like straight ones
+        float maxOverscroll = Math.min(cropWidth, cropHeight) * MAX_OVERSCROLL;
+        float localDx = resistAxis(coverageSolver.toLocalX(dx, dy),
+                coverageSolver.toLocalX(offsetX, offsetY), coverageSolver.limitX(scale), maxOverscroll);
+        float localDy = resistAxis(coverageSolver.toLocalY(dx, dy),
+                coverageSolver.toLocalY(offsetX, offsetY), coverageSolver.limitY(scale), maxOverscroll);
 
-        float resistedDx = dx;
-        float resistedDy = dy;
+        resistedOffset[0] = coverageSolver.toViewX(localDx, localDy);
+        resistedOffset[1] = coverageSolver.toViewY(localDx, localDy);
+    }
 
-        if (bounds.left > leftCrop) {
-            float overflow = bounds.left - leftCrop;
-            if (overflow > maxOverscroll) {
-                resistedDx = dx - (overflow - maxOverscroll);
-            } else {
-                float resistance = 1f / (1f + overflow / RESISTANCE_FACTOR);
-                resistedDx = dx * resistance;
-            }
-        } else if (bounds.right < rightCrop) {
-            float overflow = rightCrop - bounds.right;
-            if (overflow > maxOverscroll) {
-                resistedDx = dx + (overflow - maxOverscroll);
-            } else {
-                float resistance = 1f / (1f + overflow / RESISTANCE_FACTOR);
-                resistedDx = dx * resistance;
-            }
-        }
+    private float resistAxis(float delta, float position, float limit, float maxOverscroll) {
+        float overflow = Math.abs(position) - limit;
+        if (overflow <= 0f) return delta;
 
-        if (bounds.top > topCrop) {
-            float overflow = bounds.top - topCrop;
-            if (overflow > maxOverscroll) {
-                resistedDy = dy - (overflow - maxOverscroll);
-            } else {
-                float resistance = 1f / (1f + overflow / RESISTANCE_FACTOR);
-                resistedDy = dy * resistance;
-            }
-        } else if (bounds.bottom < bottomCrop) {
-            float overflow = bottomCrop - bounds.bottom;
-            if (overflow > maxOverscroll) {
-                resistedDy = dy + (overflow - maxOverscroll);
-            } else {
-                float resistance = 1f / (1f + overflow / RESISTANCE_FACTOR);
-                resistedDy = dy * resistance;
-            }
+        if (overflow > maxOverscroll) {
+            return delta - Math.signum(position) * (overflow - maxOverscroll);
         }
 
-        return new float[]{resistedDx, resistedDy};
+        float resistance = 1f / (1f + overflow / RESISTANCE_FACTOR);
+        return delta * resistance;
     }
 
     private void animateBounceBack() {
         if (getDrawable() == null) return;
 
-        float[] m = new float[9];
-        matrix.getValues(m);
-        float scale = (float) Math.sqrt(m[Matrix.MSCALE_X] * m[Matrix.MSCALE_X] + m[Matrix.MSKEW_X] * m[Matrix.MSKEW_X]);
+        float scale = syncSolver(matrix);
 
-        if (scale < minScale) {
+        if (scale * (1f + SCALE_TOLERANCE) < minScale) {
             animateToCenter();
             return;
         }
 
-        RectF bounds = new RectF(0, 0, getDrawable().getIntrinsicWidth(), getDrawable().getIntrinsicHeight());
-        matrix.mapRect(bounds);
+        float offsetX = getImageOffsetX();
+        float offsetY = getImageOffsetY();
+        coverageSolver.clampOffset(scale, offsetX, offsetY, clampedOffset);
 
-        int leftCrop = (viewWidth - cropSize) / 2;
-        int topCrop = (viewHeight - cropSize) / 2;
-        int rightCrop = leftCrop + cropSize;
-        int bottomCrop = topCrop + cropSize;
+        float correctionX = clampedOffset[0] - offsetX;
+        float correctionY = clampedOffset[1] - offsetY;
 
-        float transX = m[Matrix.MTRANS_X];
-        float transY = m[Matrix.MTRANS_Y];
-        float correctedX = transX;
-        float correctedY = transY;
-
-        boolean needsAnimation = false;
-
-        if (bounds.left > leftCrop) {
-            correctedX = transX + (leftCrop - bounds.left);
-            needsAnimation = true;
-        } else if (bounds.right < rightCrop) {
-            correctedX = transX + (rightCrop - bounds.right);
-            needsAnimation = true;
-        }
+        if (Math.abs(correctionX) < SNAP_THRESHOLD && Math.abs(correctionY) < SNAP_THRESHOLD) return;
 
-        if (bounds.top > topCrop) {
-            correctedY = transY + (topCrop - bounds.top);
-            needsAnimation = true;
-        } else if (bounds.bottom < bottomCrop) {
-            correctedY = transY + (bottomCrop - bounds.bottom);
-            needsAnimation = true;
-        }
-
-        if (!needsAnimation) return;
+        animateTranslation(correctionX, correctionY);
+    }
 
-        final float startTransX = transX;
-        final float startTransY = transY;
-        final float endTransX = correctedX;
-        final float endTransY = correctedY;
+    private void animateTranslation(float dx, float dy) {
+        matrix.getValues(matrixValues);
+        final float startTransX = matrixValues[Matrix.MTRANS_X];
+        final float startTransY = matrixValues[Matrix.MTRANS_Y];
+        final float endTransX = startTransX + dx;
+        final float endTransY = startTransY + dy;
 
         if (bounceAnimator != null && bounceAnimator.isRunning()) {
             bounceAnimator.cancel();
         }
+        bounceTarget.set(matrix);
+        bounceTarget.postTranslate(dx, dy);
 
         bounceAnimator = ValueAnimator.ofFloat(0f, 1f);
         bounceAnimator.setDuration(BOUNCE_DURATION);
@@ -340,11 +1043,10 @@ public class PombosCropView extends AppCompatImageView {
                 float currentTransX = startTransX + (endTransX - startTransX) * progress;
                 float currentTransY = startTransY + (endTransY - startTransY) * progress;
 
-                float[] values = new float[9];
-                matrix.getValues(values);
-                values[Matrix.MTRANS_X] = currentTransX;
-                values[Matrix.MTRANS_Y] = currentTransY;
-                matrix.setValues(values);
+                matrix.getValues(matrixValues);
+                matrixValues[Matrix.MTRANS_X] = currentTransX;
+                matrixValues[Matrix.MTRANS_Y] = currentTransY;
+                matrix.setValues(matrixValues);
 
                 setImageMatrix(matrix);
                 invalidate();
@@ -356,48 +1058,16 @@ public class PombosCropView extends AppCompatImageView {
     private void animateToCenter() {
         if (getDrawable() == null) return;
 
-        float imageWidth = getDrawable().getIntrinsicWidth();
-        float imageHeight = getDrawable().getIntrinsicHeight();
-
-        float effectiveWidth = imageWidth;
-        float effectiveHeight = imageHeight;
-
-        if (rotationDegrees % 180 != 0) {
-            effectiveWidth = imageHeight;
-            effectiveHeight = imageWidth;
+        if (bounceAnimator != null && bounceAnimator.isRunning()) {
+            bounceAnimator.cancel();
         }
 
-        float targetScale = Math.max(cropSize / effectiveWidth, cropSize / effectiveHeight);
-
-        Matrix targetMatrix = new Matrix();
-        targetMatrix.postScale(targetScale, targetScale);
-        targetMatrix.postRotate(rotationDegrees, (imageWidth * targetScale) / 2f, (imageHeight * targetScale) / 2f);
-
-        RectF rect = new RectF(0, 0, imageWidth, imageHeight);
-        targetMatrix.mapRect(rect);
-
-        int leftCrop = (viewWidth - cropSize) / 2;
-        int topCrop = (viewHeight - cropSize) / 2;
-
-        float cropCenterX = leftCrop + cropSize / 2f;
-        float cropCenterY = topCrop + cropSize / 2f;
-
-        float imageCenterX = rect.left + rect.width() / 2f;
-        float imageCenterY = rect.top + rect.height() / 2f;
-
-        float dx = cropCenterX - imageCenterX;
-        float dy = cropCenterY - imageCenterY;
-
-        targetMatrix.postTranslate(dx, dy);
+        final float targetScale = buildCenteredMatrix(getTotalRotation(), bounceTarget);
 
         float[] startValues = new float[9];
         float[] endValues = new float[9];
         matrix.getValues(startValues);
-        targetMatrix.getValues(endValues);
-
-        if (bounceAnimator != null && bounceAnimator.isRunning()) {
-            bounceAnimator.cancel();
-        }
+        bounceTarget.getValues(endValues);
 
         bounceAnimator = ValueAnimator.ofFloat(0f, 1f);
         bounceAnimator.setDuration(BOUNCE_DURATION);
@@ -406,13 +1076,12 @@ public class PombosCropView extends AppCompatImageView {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
                 float progress = (float) animation.getAnimatedValue();
-                float[] currentValues = new float[9];
 
                 for (int i = 0; i < 9; i++) {
-                    currentValues[i] = startValues[i] + (endValues[i] - startValues[i]) * progress;
+                    matrixValues[i] = startValues[i] + (endValues[i] - startValues[i]) * progress;
                 }
 
-                matrix.setValues(currentValues);
+                matrix.setValues(matrixValues);
                 currentScale = targetScale;
                 setImageMatrix(matrix);
                 invalidate();
@@ -425,40 +1094,35 @@ public class PombosCropView extends AppCompatImageView {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (cropSize == 0) return;
-
-        int left = (viewWidth - cropSize) / 2;
-        int top = (viewHeight - cropSize) / 2;
-        int right = left + cropSize;
-        int bottom = top + cropSize;
+        if (cropWidth == 0) return;
 
-        canvas.drawRect(0, 0, viewWidth, top, overlayPaint);
-        canvas.drawRect(0, bottom, viewWidth, viewHeight, overlayPaint);
-        canvas.drawRect(0, top, left, bottom, overlayPaint);
-        canvas.drawRect(right, top, viewWidth, bottom, overlayPaint);
+        canvas.drawPath(overlayPath, overlayPaint);
 
-        float cellWidth = cropSize / 3f;
-        float cellHeight = cropSize / 3f;
+        float cellWidth = cropWidth / 3f;
+        float cellHeight = cropHeight / 3f;
 
+        canvas.save();
+        canvas.clipPath(cropPath);
         for (int i = 1; i < 3; i++) {
-            float x = left + (i * cellWidth);
-            canvas.drawLine(x, top, x, bottom, gridPaint);
+            float x = cropRect.left + (i * cellWidth);
+            canvas.drawLine(x, cropRect.top, x, cropRect.bottom, gridPaint);
 
-            float y = top + (i * cellHeight);
-            canvas.drawLine(left, y, right, y, gridPaint);
+            float y = cropRect.top + (i * cellHeight);
+            canvas.drawLine(cropRect.left, y, cropRect.right, y, gridPaint);
         }
+        canvas.restore();
 
-        canvas.drawRect(left, top, right, bottom, gridPaint);
+        canvas.drawPath(cropPath, gridPaint);
 
         canvas.drawCircle(fabCx, fabCy, fabRadius, fabPaint);
         canvas.drawCircle(fabCx, fabCy, fabRadius, fabStrokePaint);
 
         if (fabIcon != null) {
             int iconSize = (int) (fabRadius * 0.9f);
-            left = (int) (fabCx - iconSize / 2f);
-            top = (int) (fabCy - iconSize / 2f);
-            right = left + iconSize;
-            bottom = top + iconSize;
+            int left = (int) (fabCx - iconSize / 2f);
+            int top = (int) (fabCy - iconSize / 2f);
+            int right = left + iconSize;
+            int bottom = top + iconSize;
 
             fabIcon.setBounds(left, top, right, bottom);
             fabIcon.draw(canvas);
@@ -469,22 +1133,26 @@ public class PombosCropView extends AppCompatImageView {
         if (getDrawable() == null) return null;
 
         try {
-            Bitmap originalBitmap = ((android.graphics.drawable.BitmapDrawable) getDrawable()).getBitmap();
+            Bitmap originalBitmap = ((BitmapDrawable) getDrawable()).getBitmap();
 
-            Bitmap transformedBitmap = Bitmap.createBitmap(viewWidth, viewHeight, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(transformedBitmap);
+            Bitmap croppedBitmap = Bitmap.createBitmap(cropWidth, cropHeight, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(croppedBitmap);
 
-            canvas.save();
-            canvas.concat(matrix);
-            canvas.drawBitmap(originalBitmap, 0, 0, null);
-            canvas.restore();
+            Matrix shaderMatrix = new Matrix(matrix);
+            shaderMatrix.postTranslate(-cropRect.left, -cropRect.top);
 
-            int left = (viewWidth - cropSize) / 2;
-            int top = (viewHeight - cropSize) / 2;
+            BitmapShader shader = new BitmapShader(originalBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            shader.setLocalMatrix(shaderMatrix);
 
-            Bitmap croppedBitmap = Bitmap.createBitmap(transformedBitmap, left, top, cropSize, cropSize);
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+            paint.setShader(shader);
 
-            transformedBitmap.recycle();
+            // Drawing the shape itself applies the mask in the same pass that extracts the crop
+            if (cropShape == SHAPE_OVAL) {
+                canvas.drawOval(0, 0, cropWidth, cropHeight, paint);
+            } else {
+                canvas.drawRect(0, 0, cropWidth, cropHeight, paint);
+            }
 
             return croppedBitmap;
 
@@ -494,13 +1162,90 @@ public class PombosCropView extends AppCompatImageView {
         }
     }
 
+    static class SavedState extends BaseSavedState {
+        // Crop centre as a fraction of the source size, zoom relative to the minimum coverage scale
+        float centerX = 0.5f;
+        float centerY = 0.5f;
+        float zoom = 1f;
+        int rotationDegrees;
+        float straightenAngle;
+        boolean userAdjusted;
+        // The image the framing belongs to
+        String sourceKey;
+        float sourceAspect;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            centerX = in.readFloat();
+            centerY = in.readFloat();
+            zoom = in.readFloat();
+            rotationDegrees = in.readInt();
+            straightenAngle = in.readFloat();
+            userAdjusted = in.readInt() != 0;
+            sourceKey = in.readString();
+            sourceAspect = in.readFloat();
+        }
+
+        // URI and resource keys must match; bitmaps set directly can only be compared by shape
+        boolean matchesSource(String key, float aspect) {
+            if (isStableKey(sourceKey) || isStableKey(key)) {
+                return Objects.equals(sourceKey, key);
+            }
+            return Math.abs(sourceAspect - aspect) <= SOURCE_ASPECT_TOLERANCE * aspect;
+        }
+
+        private static boolean isStableKey(String key) {
+            return key != null && !key.startsWith(BITMAP_KEY_PREFIX);
+        }
+
+        void copyFrom(SavedState other) {
+            centerX = other.centerX;
+            centerY = other.centerY;
+            zoom = other.zoom;
+            rotationDegrees = other.rotationDegrees;
+            straightenAngle = other.straightenAngle;
+            userAdjusted = other.userAdjusted;
+            sourceKey = other.sourceKey;
+            sourceAspect = other.sourceAspect;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeFloat(centerX);
+            out.writeFloat(centerY);
+            out.writeFloat(zoom);
+            out.writeInt(rotationDegrees);
+            out.writeFloat(straightenAngle);
+            out.writeInt(userAdjusted ? 1 : 0);
+            out.writeString(sourceKey);
+            out.writeFloat(sourceAspect);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
         @Override
         public boolean onScale(ScaleGestureDetector detector) {
             float scaleFactor = detector.getScaleFactor();
             float newScale = currentScale * scaleFactor;
 
-            if (newScale <= maxScale) {
+            if (newScale <= maxScale * resolutionScale) {
                 matrix.postScale(scaleFactor, scaleFactor, detector.getFocusX(), detector.getFocusY());
                 currentScale = newScale;
                 setImageMatrix(matrix);
@@ -515,15 +1260,10 @@ public class PombosCropView extends AppCompatImageView {
         if (getDrawable() == null) return;
         if (rotateAnimator != null && rotateAnimator.isRunning()) return;
 
+        userAdjusted = true;
         final int startRotation = rotationDegrees;
         final int endRotation = (rotationDegrees + 90) % 360;
 
-        float imageWidth = getDrawable().getIntrinsicWidth();
-        float imageHeight = getDrawable().getIntrinsicHeight();
-
-        float[] startValues = new float[9];
-        matrix.getValues(startValues);
-
         rotateAnimator = ValueAnimator.ofFloat(0f, 1f);
         rotateAnimator.setDuration(ROTATE_DURATION);
         rotateAnimator.setInterpolator(new DecelerateInterpolator());
@@ -531,41 +1271,9 @@ public class PombosCropView extends AppCompatImageView {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
                 float progress = (float) animation.getAnimatedValue();
-                float currentRotation = startRotation + (endRotation - startRotation) * progress;
-
-                float effectiveWidth = imageWidth;
-                float effectiveHeight = imageHeight;
-
-                if (((int) currentRotation) % 180 != 0) {
-                    effectiveWidth = imageHeight;
-                    effectiveHeight = imageWidth;
-                }
-
-                float scale = Math.max(cropSize / effectiveWidth, cropSize / effectiveHeight);
-
-                Matrix tempMatrix = new Matrix();
-                tempMatrix.postScale(scale, scale);
-                tempMatrix.postRotate(currentRotation, (imageWidth * scale) / 2f, (imageHeight * scale) / 2f);
-
-                RectF rect = new RectF(0, 0, imageWidth, imageHeight);
-                tempMatrix.mapRect(rect);
-
-                int leftCrop = (viewWidth - cropSize) / 2;
-                int topCrop = (viewHeight - cropSize) / 2;
-
-                float cropCenterX = leftCrop + cropSize / 2f;
-                float cropCenterY = topCrop + cropSize / 2f;
-
-                float imageCenterX = rect.left + rect.width() / 2f;
-                float imageCenterY = rect.top + rect.height() / 2f;
-
-                float dx = cropCenterX - imageCenterX;
-                float dy = cropCenterY - imageCenterY;
-
-                tempMatrix.postTranslate(dx, dy);
+                float currentRotation = startRotation + 90f * progress + straightenAngle;
 
-                matrix.set(tempMatrix);
-                currentScale = scale;
+                currentScale = buildCenteredMatrix(currentRotation, matrix);
                 setImageMatrix(matrix);
                 invalidate();
             }
@@ -578,15 +1286,19 @@ public class PombosCropView extends AppCompatImageView {
             @Override
             public void onAnimationEnd(android.animation.Animator animation) {
                 rotationDegrees = endRotation;
-                minScale = Math.max(
-                        cropSize / (rotationDegrees % 180 != 0 ? imageHeight : imageWidth),
-                        cropSize / (rotationDegrees % 180 != 0 ? imageWidth : imageHeight)
-                );
+                updateMinScale();
             }
 
             @Override
             public void onAnimationCancel(android.animation.Animator animation) {
                 rotationDegrees = endRotation;
+                // Settle on the target angle; the coverage math assumes matrix matches getTotalRotation()
+                if (getDrawable() != null) {
+                    currentScale = buildCenteredMatrix(getTotalRotation(), matrix);
+                    updateMinScale();
+                    setImageMatrix(matrix);
+                    invalidate();
+                }
             }
 
             @Override
@@ -596,4 +1308,216 @@ public class PombosCropView extends AppCompatImageView {
         rotateAnimator.start();
     }
 
+    public void setStraightenAngle(float degrees) {
+        float angle = Math.max(-MAX_STRAIGHTEN_ANGLE, Math.min(MAX_STRAIGHTEN_ANGLE, degrees));
+        float delta = angle - straightenAngle;
+        userAdjusted = true;
+
+        // A running 90° rotation reads straightenAngle on its next frame
+        if (getDrawable() == null || cropWidth == 0 || delta == 0f
+                || (rotateAnimator != null && rotateAnimator.isRunning())) {
+            straightenAngle = angle;
+            return;
+        }
+
+        if (bounceAnimator != null && bounceAnimator.isRunning()) {
+            bounceAnimator.cancel();
+        }
+
+        // Rebuild from the framing the gesture started with, so moving a slider back undoes zoom and shift
+        matrix.getValues(matrixValues);
+        boolean continuing = Arrays.equals(matrixValues, straightenValues);
+        straightenAngle = angle;
+        if (!continuing && !captureFraming(matrix, straightenFraming)) return;
+
+        applyFraming(straightenFraming[0], straightenFraming[1], straightenFraming[2]);
+        matrix.getValues(straightenValues);
+    }
+
+    public float getStraightenAngle() {
+        return straightenAngle;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    /**
+     * Maps the crop area onto a source of the given size (e.g. the camera frame the displayed
+     * bitmap was converted from), for use with {@link YuvCropper}. Same as calling
+     * {@link #getCropRegion(int, int, int, Rect)} with a source rotation of 0.
+     */
+    public boolean getCropRegion(int sourceWidth, int sourceHeight, Rect out) {
+        return getCropRegion(sourceWidth, sourceHeight, 0, out);
+    }
+
+    /**
+     * Maps the crop area onto a source that was rotated clockwise by sourceRotationDegrees before
+     * it was displayed, such as a CameraX frame with {@code ImageInfo.getRotationDegrees()}. The
+     * region is in unrotated source coordinates; pass
+     * {@code sourceRotationDegrees + getRotationDegrees()} to {@link YuvCropper} so the output
+     * matches what the crop area shows. Returns false while a rotation animates or when a
+     * straighten angle is set, since the region is then not an axis-aligned rect in source
+     * space. Crop shape masks are not applied on this path.
+     */
+    public boolean getCropRegion(int sourceWidth, int sourceHeight, int sourceRotationDegrees, Rect out) {
+        if (sourceRotationDegrees % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + sourceRotationDegrees);
+        }
+        if (getDrawable() == null || cropWidth == 0 || straightenAngle != 0f) return false;
+        if (rotateAnimator != null && rotateAnimator.isRunning()) return false;
+
+        Matrix inverse = new Matrix();
+        if (!matrix.invert(inverse)) return false;
+
+        RectF region = new RectF(cropRect);
+        inverse.mapRect(region);
+
+        // Scale into the upright (displayed) source, whose sides are swapped for 90 and 270
+        int rotation = ((sourceRotationDegrees % 360) + 360) % 360;
+        float uprightWidth = rotation % 180 == 0 ? sourceWidth : sourceHeight;
+        float uprightHeight = rotation % 180 == 0 ? sourceHeight : sourceWidth;
+        float scaleX = uprightWidth / getDrawable().getIntrinsicWidth();
+        float scaleY = uprightHeight / getDrawable().getIntrinsicHeight();
+        float left = region.left * scaleX;
+        float top = region.top * scaleY;
+        float right = region.right * scaleX;
+        float bottom = region.bottom * scaleY;
+
+        // Undo the clockwise source rotation
+        switch (rotation) {
+            case 90:
+                region.set(top, uprightWidth - right, bottom, uprightWidth - left);
+                break;
+            case 180:
+                region.set(uprightWidth - right, uprightHeight - bottom, uprightWidth - left, uprightHeight - top);
+                break;
+            case 270:
+                region.set(uprightHeight - bottom, left, uprightHeight - top, right);
+                break;
+            default:
+                region.set(left, top, right, bottom);
+                break;
+        }
+
+        out.set(
+                Math.max(0, Math.round(region.left)),
+                Math.max(0, Math.round(region.top)),
+                Math.min(sourceWidth, Math.round(region.right)),
+                Math.min(sourceHeight, Math.round(region.bottom))
+        );
+        return !out.isEmpty();
+    }
+
+    public void setCropShape(int shape) {
+        if (shape != SHAPE_RECTANGLE && shape != SHAPE_OVAL) {
+            throw new IllegalArgumentException("Unknown crop shape: " + shape);
+        }
+        cropShape = shape;
+        onCropAreaChanged();
+    }
+
+    public int getCropShape() {
+        return cropShape;
+    }
+
+    // Width divided by height; 1f gives a square or, with SHAPE_OVAL, a circle
+    public void setCropAspectRatio(float ratio) {
+        if (ratio <= 0f) {
+            throw new IllegalArgumentException("Aspect ratio must be positive: " + ratio);
+        }
+        cropAspectRatio = ratio;
+        onCropAreaChanged();
+    }
+
+    public float getCropAspectRatio() {
+        return cropAspectRatio;
+    }
+
+    public interface OnCropPreviewListener {
+        // Called on the UI thread; the bitmap is reused, so only read it until the next call
+        void onCropPreview(Bitmap preview);
+    }
+
+    public void setOnCropPreviewListener(OnCropPreviewListener listener) {
+        previewListener = listener;
+        releasePreviewRenderer();
+        if (listener != null && isAttachedToWindow()) {
+            startPreviewRenderer();
+        }
+    }
+
+    // Longest side of the preview bitmap in pixels
+    public void setCropPreviewSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Preview size must be positive: " + size);
+        }
+        previewSize = size;
+        if (previewRenderer != null) {
+            previewRenderer.setPreviewSize(size);
+            requestCropPreview();
+        }
+    }
+
+    public void setCropPreviewFrameRate(int fps) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + fps);
+        }
+        previewFrameRate = fps;
+        if (previewRenderer != null) {
+            previewRenderer.setFrameRate(fps);
+        }
+    }
+
+    private void startPreviewRenderer() {
+        previewRenderer = new CropPreviewRenderer(new CropPreviewRenderer.Callback() {
+            @Override
+            public void onPreviewRendered(Bitmap preview) {
+                if (previewListener != null) {
+                    previewListener.onCropPreview(preview);
+                }
+            }
+        }, previewSize, previewFrameRate);
+        requestCropPreview();
+    }
+
+    private void releasePreviewRenderer() {
+        if (previewRenderer != null) {
+            previewRenderer.release();
+            previewRenderer = null;
+        }
+    }
+
+    private void requestCropPreview() {
+        requestCropPreview(getImageMatrix());
+    }
+
+    private void requestCropPreview(Matrix imageMatrix) {
+        if (previewRenderer == null || cropWidth == 0 || !(getDrawable() instanceof BitmapDrawable)) return;
+
+        Bitmap source = ((BitmapDrawable) getDrawable()).getBitmap();
+        if (source != null) {
+            previewRenderer.request(source, imageMatrix, cropRect, cropShape == SHAPE_OVAL);
+        }
+    }
+
+    private void onCropAreaChanged() {
+        if (viewWidth == 0 || viewHeight == 0) return;
+
+        updateCropArea();
+        updateMinScale();
+        if (rotateAnimator == null || !rotateAnimator.isRunning()) {
+            animateBounceBack();
+        }
+        invalidate();
+    }
+
+    private void updateMinScale() {
+        if (getDrawable() == null) return;
+
+        coverageSolver.setImageSize(getDrawable().getIntrinsicWidth(), getDrawable().getIntrinsicHeight());
+        coverageSolver.setAngle(getTotalRotation());
+        minScale = coverageSolver.minScale();
+    }
+
 }
@@ -0,0 +1,187 @@
+package com.pombos.pombocropview;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Crops and rotates YUV 4:2:0 frames (e.g. CameraX {@code ImageProxy} in YUV_420_888) in plane
+ * space, so only the cropped pixels are ever converted or copied.
+ * <p>
+ * The crop region is snapped to even coordinates so it lines up with the 2x2 chroma grid.
+ * Rotation is clockwise in 90 degree steps: the frame's own rotation plus
+ * {@link PombosCropView#getRotationDegrees()}, see {@link PombosCropView#getCropRegion(int, int, int, android.graphics.Rect)}.
+ */
+public final class YuvCropper {
+
+    /**
+     * One image plane: the buffer plus its row and pixel strides, as reported by
+     * {@code ImageProxy.PlaneProxy}. Absolute reads are used, so the buffer position is untouched.
+     */
+    public static final class Plane {
+        final ByteBuffer buffer;
+        final int rowStride;
+        final int pixelStride;
+
+        public Plane(ByteBuffer buffer, int rowStride, int pixelStride) {
+            this.buffer = buffer;
+            this.rowStride = rowStride;
+            this.pixelStride = pixelStride;
+        }
+    }
+
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+
+    public YuvCropper(int frameWidth, int frameHeight, int left, int top, int width, int height, int rotationDegrees) {
+        if (rotationDegrees % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotationDegrees);
+        }
+
+        int right = Math.min(frameWidth, left + width) & ~1;
+        int bottom = Math.min(frameHeight, top + height) & ~1;
+        this.left = Math.max(0, left) & ~1;
+        this.top = Math.max(0, top) & ~1;
+        this.width = right - this.left;
+        this.height = bottom - this.top;
+        this.rotationDegrees = ((rotationDegrees % 360) + 360) % 360;
+
+        if (this.width <= 0 || this.height <= 0) {
+            throw new IllegalArgumentException("Crop region is empty after chroma alignment");
+        }
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getCropWidth() {
+        return width;
+    }
+
+    public int getCropHeight() {
+        return height;
+    }
+
+    public int getOutputWidth() {
+        return rotationDegrees % 180 == 0 ? width : height;
+    }
+
+    public int getOutputHeight() {
+        return rotationDegrees % 180 == 0 ? height : width;
+    }
+
+    /**
+     * Converts the cropped region to ARGB_8888 pixels (full-range BT.601, as used by JPEG),
+     * ready for {@code Bitmap.createBitmap(int[], w, h, ARGB_8888)} or {@code Bitmap.setPixels()}.
+     * Reuses out when it is large enough.
+     */
+    public int[] toArgb(Plane y, Plane u, Plane v, int[] out) {
+        int outputWidth = getOutputWidth();
+        int outputHeight = getOutputHeight();
+        if (out == null || out.length < outputWidth * outputHeight) {
+            out = new int[outputWidth * outputHeight];
+        }
+
+        int[] source = new int[2];
+        for (int oy = 0; oy < outputHeight; oy++) {
+            int row = oy * outputWidth;
+            for (int ox = 0; ox < outputWidth; ox++) {
+                mapToSource(ox, oy, width, height, source);
+                int sx = left + source[0];
+                int sy = top + source[1];
+
+                int luma = read(y, sx, sy);
+                int cb = read(u, sx >> 1, sy >> 1) - 128;
+                int cr = read(v, sx >> 1, sy >> 1) - 128;
+
+                int r = clamp(luma + ((91881 * cr) >> 16));
+                int g = clamp(luma - ((22554 * cb + 46802 * cr) >> 16));
+                int b = clamp(luma + ((116130 * cb) >> 16));
+                out[row + ox] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Copies the cropped region into an NV21 buffer (Y plane, then interleaved V/U), the layout
+     * accepted by {@code android.graphics.YuvImage} for JPEG encoding. Reuses out when it is large enough.
+     */
+    public byte[] toNv21(Plane y, Plane u, Plane v, byte[] out) {
+        int outputWidth = getOutputWidth();
+        int outputHeight = getOutputHeight();
+        int lumaSize = outputWidth * outputHeight;
+        if (out == null || out.length < lumaSize + lumaSize / 2) {
+            out = new byte[lumaSize + lumaSize / 2];
+        }
+
+        int[] source = new int[2];
+        if (rotationDegrees == 0 && y.pixelStride == 1) {
+            ByteBuffer rows = y.buffer.duplicate();
+            for (int oy = 0; oy < outputHeight; oy++) {
+                rows.position((top + oy) * y.rowStride + left);
+                rows.get(out, oy * outputWidth, outputWidth);
+            }
+        } else {
+            for (int oy = 0; oy < outputHeight; oy++) {
+                int row = oy * outputWidth;
+                for (int ox = 0; ox < outputWidth; ox++) {
+                    mapToSource(ox, oy, width, height, source);
+                    out[row + ox] = (byte) read(y, left + source[0], top + source[1]);
+                }
+            }
+        }
+
+        int chromaWidth = outputWidth / 2;
+        int chromaHeight = outputHeight / 2;
+        int chromaLeft = left / 2;
+        int chromaTop = top / 2;
+        for (int oy = 0; oy < chromaHeight; oy++) {
+            int row = lumaSize + oy * outputWidth;
+            for (int ox = 0; ox < chromaWidth; ox++) {
+                mapToSource(ox, oy, width / 2, height / 2, source);
+                int sx = chromaLeft + source[0];
+                int sy = chromaTop + source[1];
+                out[row + 2 * ox] = (byte) read(v, sx, sy);
+                out[row + 2 * ox + 1] = (byte) read(u, sx, sy);
+            }
+        }
+        return out;
+    }
+
+    // Output coordinates to crop-relative source coordinates for a clockwise rotation
+    private void mapToSource(int ox, int oy, int sourceWidth, int sourceHeight, int[] out) {
+        switch (rotationDegrees) {
+            case 90:
+                out[0] = oy;
+                out[1] = sourceHeight - 1 - ox;
+                break;
+            case 180:
+                out[0] = sourceWidth - 1 - ox;
+                out[1] = sourceHeight - 1 - oy;
+                break;
+            case 270:
+                out[0] = sourceWidth - 1 - oy;
+                out[1] = ox;
+                break;
+            default:
+                out[0] = ox;
+                out[1] = oy;
+                break;
+        }
+    }
+
+    private static int read(Plane plane, int x, int y) {
+        return plane.buffer.get(y * plane.rowStride + x * plane.pixelStride) & 0xFF;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(255, value);
+    }
+}
@@ -0,0 +1,88 @@
+package com.pombos.pombocropview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoverageSolverTest {
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void minScale_axisAligned_matchesLegacyFormula() {
+        CoverageSolver solver = new CoverageSolver();
+        solver.setImageSize(400f, 300f);
+        solver.setCropSize(200f, 200f);
+
+        solver.setAngle(0f);
+        assertEquals(Math.max(200f / 400f, 200f / 300f), solver.minScale(), DELTA);
+
+        solver.setAngle(90f);
+        assertEquals(Math.max(200f / 300f, 200f / 400f), solver.minScale(), DELTA);
+    }
+
+    @Test
+    public void minScale_diagonal_coversProjectedCrop() {
+        CoverageSolver solver = new CoverageSolver();
+        solver.setImageSize(400f, 300f);
+        solver.setCropSize(200f, 200f);
+        solver.setAngle(45f);
+
+        // Square crop projected at 45° spans its diagonal along both image axes
+        float diagonal = (float) (200f * Math.sqrt(2));
+        assertEquals(diagonal / 300f, solver.minScale(), DELTA);
+    }
+
+    @Test
+    public void minScale_circle_isRotationInvariant() {
+        CoverageSolver solver = new CoverageSolver();
+        solver.setImageSize(400f, 300f);
+        solver.setCropSize(200f, 200f);
+        solver.setOval(true);
+
+        solver.setAngle(0f);
+        float axisAligned = solver.minScale();
+        solver.setAngle(33f);
+
+        assertEquals(200f / 300f, axisAligned, DELTA);
+        assertEquals(axisAligned, solver.minScale(), DELTA);
+    }
+
+    @Test
+    public void clampOffset_keepsAllCropCornersInsideImage() {
+        CoverageSolver solver = new CoverageSolver();
+        solver.setImageSize(400f, 300f);
+        solver.setCropSize(200f, 120f);
+
+        float[] out = new float[2];
+        for (int degrees = -180; degrees <= 180; degrees += 7) {
+            solver.setAngle(degrees);
+            float scale = solver.minScale() * 1.3f;
+            solver.clampOffset(scale, 500f, -420f, out);
+
+            double radians = Math.toRadians(degrees);
+            for (int corner = 0; corner < 4; corner++) {
+                double px = ((corner & 1) == 0 ? -100f : 100f) - out[0];
+                double py = ((corner & 2) == 0 ? -60f : 60f) - out[1];
+                double localX = Math.cos(radians) * px + Math.sin(radians) * py;
+                double localY = -Math.sin(radians) * px + Math.cos(radians) * py;
+
+                assertTrue(Math.abs(localX) <= scale * 200f + DELTA);
+                assertTrue(Math.abs(localY) <= scale * 150f + DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void clampOffset_leavesCoveringOffsetUntouched() {
+        CoverageSolver solver = new CoverageSolver();
+        solver.setImageSize(400f, 300f);
+        solver.setCropSize(200f, 200f);
+        solver.setAngle(10f);
+
+        float[] out = new float[2];
+        solver.clampOffset(2f, 5f, -3f, out);
+
+        assertEquals(5f, out[0], DELTA);
+        assertEquals(-3f, out[1], DELTA);
+    }
+}
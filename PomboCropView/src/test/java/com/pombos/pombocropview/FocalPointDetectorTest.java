@@ -0,0 +1,51 @@
+package com.pombos.pombocropview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FocalPointDetectorTest {
+    private static final int SIZE = FocalPointDetector.BUFFER_SIZE;
+
+    @Test
+    public void detect_flatImage_returnsCentre() {
+        int[] pixels = new int[SIZE * SIZE];
+        java.util.Arrays.fill(pixels, 0xFF808080);
+
+        float[] out = new float[2];
+        assertTrue(FocalPointDetector.detect(pixels, SIZE, SIZE, out));
+
+        assertEquals(0.5f, out[0], 0.001f);
+        assertEquals(0.5f, out[1], 0.001f);
+    }
+
+    @Test
+    public void detect_texturedPatch_returnsPatchCentre() {
+        int[] pixels = new int[SIZE * SIZE];
+        java.util.Arrays.fill(pixels, 0xFF202020);
+        for (int y = 40; y < 80; y++) {
+            for (int x = 170; x < 210; x++) {
+                // 4 px cells: a 1 px pattern has zero central-difference gradient inside the patch
+                pixels[y * SIZE + x] = (((x >> 2) + (y >> 2)) & 1) == 0 ? 0xFFFFFFFF : 0xFF000000;
+            }
+        }
+
+        float[] out = new float[2];
+        assertTrue(FocalPointDetector.detect(pixels, SIZE, SIZE, out));
+
+        assertEquals(190f / SIZE, out[0], 0.03f);
+        assertEquals(60f / SIZE, out[1], 0.03f);
+    }
+
+    @Test
+    public void detect_interruptedThread_stopsEarly() {
+        int[] pixels = new int[SIZE * SIZE];
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(FocalPointDetector.detect(pixels, SIZE, SIZE, new float[2]));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.pombos.pombocropview;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvCropperTest {
+    private static final int FRAME_WIDTH = 8;
+    private static final int FRAME_HEIGHT = 6;
+
+    // Y value encodes its own position so rotations can be checked directly
+    private static YuvCropper.Plane lumaPlane(int rowStride) {
+        byte[] data = new byte[rowStride * FRAME_HEIGHT];
+        for (int y = 0; y < FRAME_HEIGHT; y++) {
+            for (int x = 0; x < FRAME_WIDTH; x++) {
+                data[y * rowStride + x] = (byte) (y * 16 + x);
+            }
+        }
+        return new YuvCropper.Plane(ByteBuffer.wrap(data), rowStride, 1);
+    }
+
+    // Interleaved chroma (pixel stride 2), as CameraX delivers on most devices
+    private static YuvCropper.Plane[] chromaPlanes() {
+        int chromaWidth = FRAME_WIDTH / 2;
+        int chromaHeight = FRAME_HEIGHT / 2;
+        byte[] data = new byte[chromaWidth * chromaHeight * 2];
+        for (int y = 0; y < chromaHeight; y++) {
+            for (int x = 0; x < chromaWidth; x++) {
+                data[(y * chromaWidth + x) * 2] = (byte) (100 + y * 4 + x);
+                data[(y * chromaWidth + x) * 2 + 1] = (byte) (200 + y * 4 + x);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        ByteBuffer u = buffer.duplicate();
+        ByteBuffer v = buffer.duplicate().position(1).slice();
+        return new YuvCropper.Plane[]{
+                new YuvCropper.Plane(u, chromaWidth * 2, 2),
+                new YuvCropper.Plane(v, chromaWidth * 2, 2)
+        };
+    }
+
+    @Test
+    public void constructor_snapsRegionToChromaGrid() {
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 1, 1, 5, 4, 0);
+
+        assertEquals(0, cropper.getLeft());
+        assertEquals(0, cropper.getTop());
+        assertEquals(6, cropper.getCropWidth());
+        assertEquals(4, cropper.getCropHeight());
+    }
+
+    @Test
+    public void toNv21_noRotation_copiesCroppedLumaAndChroma() {
+        YuvCropper.Plane[] chroma = chromaPlanes();
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 2, 2, 4, 2, 0);
+
+        byte[] nv21 = cropper.toNv21(lumaPlane(12), chroma[0], chroma[1], null);
+
+        assertArrayEquals(new byte[]{
+                34, 35, 36, 37,
+                50, 51, 52, 53,
+                (byte) 205, 105, (byte) 206, 106
+        }, nv21);
+    }
+
+    @Test
+    public void toNv21_rotate90_turnsCropClockwise() {
+        YuvCropper.Plane[] chroma = chromaPlanes();
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 2, 2, 4, 2, 90);
+
+        byte[] nv21 = cropper.toNv21(lumaPlane(FRAME_WIDTH), chroma[0], chroma[1], null);
+
+        assertEquals(2, cropper.getOutputWidth());
+        assertEquals(4, cropper.getOutputHeight());
+        assertArrayEquals(new byte[]{
+                50, 34,
+                51, 35,
+                52, 36,
+                53, 37,
+                (byte) 205, 105,
+                (byte) 206, 106
+        }, nv21);
+    }
+
+    @Test
+    public void toNv21_rotate180And270_matchReferenceMapping() {
+        YuvCropper.Plane[] chroma = chromaPlanes();
+        YuvCropper.Plane luma = lumaPlane(FRAME_WIDTH);
+
+        byte[] half = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 2, 2, 4, 2, 180)
+                .toNv21(luma, chroma[0], chroma[1], null);
+        assertArrayEquals(new byte[]{53, 52, 51, 50, 37, 36, 35, 34}, java.util.Arrays.copyOf(half, 8));
+
+        byte[] threeQuarter = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 2, 2, 4, 2, 270)
+                .toNv21(luma, chroma[0], chroma[1], null);
+        assertArrayEquals(new byte[]{37, 53, 36, 52, 35, 51, 34, 50}, java.util.Arrays.copyOf(threeQuarter, 8));
+    }
+
+    @Test
+    public void toArgb_neutralChroma_producesGrey() {
+        byte[] neutral = new byte[(FRAME_WIDTH / 2) * (FRAME_HEIGHT / 2)];
+        java.util.Arrays.fill(neutral, (byte) 128);
+        YuvCropper.Plane u = new YuvCropper.Plane(ByteBuffer.wrap(neutral), FRAME_WIDTH / 2, 1);
+        YuvCropper.Plane v = new YuvCropper.Plane(ByteBuffer.wrap(neutral), FRAME_WIDTH / 2, 1);
+
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 0, 0, 2, 2, 0);
+        int[] argb = cropper.toArgb(lumaPlane(FRAME_WIDTH), u, v, null);
+
+        assertArrayEquals(new int[]{0xFF000000, 0xFF010101, 0xFF101010, 0xFF111111}, argb);
+    }
+
+    @Test
+    public void toArgb_coloredChroma_matchesBt601PerChromaBlock() {
+        byte[] luma = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        java.util.Arrays.fill(luma, (byte) 128);
+        int chromaWidth = FRAME_WIDTH / 2;
+        byte[] cb = new byte[chromaWidth * (FRAME_HEIGHT / 2)];
+        byte[] cr = new byte[cb.length];
+        java.util.Arrays.fill(cb, (byte) 128);
+        java.util.Arrays.fill(cr, (byte) 128);
+        // Two neighbouring chroma blocks with opposite tints; the block to their left stays neutral
+        cb[chromaWidth + 1] = (byte) 90;
+        cr[chromaWidth + 1] = (byte) 200;
+        cb[chromaWidth + 2] = (byte) 160;
+        cr[chromaWidth + 2] = (byte) 60;
+
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 2, 2, 4, 2, 0);
+        int[] argb = cropper.toArgb(new YuvCropper.Plane(ByteBuffer.wrap(luma), FRAME_WIDTH, 1),
+                new YuvCropper.Plane(ByteBuffer.wrap(cb), chromaWidth, 1),
+                new YuvCropper.Plane(ByteBuffer.wrap(cr), chromaWidth, 1), null);
+
+        for (int row = 0; row < 2; row++) {
+            assertBt601(128, 90, 200, argb[row * 4]);
+            assertBt601(128, 90, 200, argb[row * 4 + 1]);
+            assertBt601(128, 160, 60, argb[row * 4 + 2]);
+            assertBt601(128, 160, 60, argb[row * 4 + 3]);
+        }
+    }
+
+    // Full-range BT.601 reference in floating point; fixed point may differ by one step
+    private static void assertBt601(int luma, int u, int v, int actual) {
+        double r = luma + 1.402 * (v - 128);
+        double g = luma - 0.344136 * (u - 128) - 0.714136 * (v - 128);
+        double b = luma + 1.772 * (u - 128);
+
+        assertEquals(0xFF, actual >>> 24);
+        assertEquals(Math.max(0, Math.min(255, r)), (actual >> 16) & 0xFF, 1.0);
+        assertEquals(Math.max(0, Math.min(255, g)), (actual >> 8) & 0xFF, 1.0);
+        assertEquals(Math.max(0, Math.min(255, b)), actual & 0xFF, 1.0);
+    }
+
+    @Test
+    public void toArgb_reusesLargeEnoughBuffer() {
+        YuvCropper.Plane[] chroma = chromaPlanes();
+        int[] buffer = new int[64];
+
+        YuvCropper cropper = new YuvCropper(FRAME_WIDTH, FRAME_HEIGHT, 0, 0, 4, 4, 90);
+
+        assertSame(buffer, cropper.toArgb(lumaPlane(FRAME_WIDTH), chroma[0], chroma[1], buffer));
+    }
+}